@@ -7,6 +7,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 
 public class TCPConnection {
@@ -20,7 +21,15 @@ public class TCPConnection {
 
     public TCPConnection(PeerInfo peerInfo) throws IOException {
         this.peerInfo = peerInfo;
-        this.socket = new Socket(peerInfo.getIp(), peerInfo.getPort());
+        this.socket = new Socket();
+
+        try {
+            this.socket.connect(new InetSocketAddress(peerInfo.getIp(), peerInfo.getPort()), CONNECTION_TIMEOUT_MS);
+        } catch (IOException e) {
+            this.socket.close();
+            throw e;
+        }
+
         this.socket.setSoTimeout(CONNECTION_TIMEOUT_MS);
         this.out = new ObjectOutputStream(socket.getOutputStream());
         this.in = new ObjectInputStream(socket.getInputStream());
@@ -34,15 +43,18 @@ public class TCPConnection {
         this.in = new ObjectInputStream(socket.getInputStream());
     }
 
-    public void sendMessage(RequestMessage message) {
-        if (this.socket.isClosed()) return;
+    // Retorna se a mensagem foi entregue ao socket
+    public boolean sendMessage(RequestMessage message) {
+        if (this.socket.isClosed()) return false;
 
         try {
             this.out.writeObject(message);
             this.out.flush();
+            return true;
         } catch (IOException e) {
             System.err.println("Erro ao enviar mensagem para " + this.peerInfo.getPeerAddress() + ". Erro: " + e.getMessage());
             this.disconnect();
+            return false;
         }
     }
 
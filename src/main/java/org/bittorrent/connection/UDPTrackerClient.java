@@ -0,0 +1,130 @@
+package org.bittorrent.connection;
+
+import org.bittorrent.message.DataType;
+import org.bittorrent.message.RequestMessage;
+import org.bittorrent.utils.BitTorrentUtils;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Canal UDP único com o Tracker. Respostas são associadas às requisições pelo ID de transação,
+// e requisições sem resposta são reenviadas com timeout dobrando a cada tentativa.
+public class UDPTrackerClient {
+
+    private static final int MAX_PACKET_SIZE = 65535;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final int INITIAL_TIMEOUT_MS = 1000;
+
+    private final InetSocketAddress trackerAddress;
+    private final DatagramChannel channel;
+    private final ScheduledExecutorService retryScheduler;
+    private final ExecutorService receiverExecutor;
+    private final Map<Long, CompletableFuture<RequestMessage>> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicLong nextTransactionId = new AtomicLong(ThreadLocalRandom.current().nextLong());
+
+    public UDPTrackerClient(String trackerIp, int trackerPort) throws IOException {
+        this.trackerAddress = new InetSocketAddress(trackerIp, trackerPort);
+        this.channel = DatagramChannel.open();
+        this.channel.bind(null);
+        // Conectado, o kernel descarta datagramas que não venham do Tracker
+        this.channel.connect(this.trackerAddress);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor();
+        this.receiverExecutor = Executors.newSingleThreadExecutor();
+        this.receiverExecutor.submit(this::receiveLoop);
+    }
+
+    public CompletableFuture<RequestMessage> send(RequestMessage request) {
+        long transactionId = this.nextTransactionId.getAndIncrement();
+        request.getData().put(DataType.TRANSACTION_ID, transactionId);
+
+        CompletableFuture<RequestMessage> future = new CompletableFuture<>();
+        future.whenComplete((response, error) -> this.pendingRequests.remove(transactionId));
+        this.pendingRequests.put(transactionId, future);
+
+        try {
+            ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(byteOut);
+            out.writeObject(request);
+            out.flush();
+
+            this.sendAttempt(byteOut.toByteArray(), future, 1);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar canal com o Tracker: " + e.getMessage());
+        }
+
+        this.retryScheduler.shutdownNow();
+        this.receiverExecutor.shutdownNow();
+        this.pendingRequests.values().forEach(future -> future.completeExceptionally(new ClosedChannelException()));
+    }
+
+    private void sendAttempt(byte[] data, CompletableFuture<RequestMessage> future, int attempt) {
+        if (future.isDone()) return;
+
+        if (attempt > MAX_ATTEMPTS) {
+            future.completeExceptionally(new SocketTimeoutException("Tracker não respondeu após " + MAX_ATTEMPTS + " tentativas"));
+            return;
+        }
+
+        try {
+            this.channel.write(ByteBuffer.wrap(data));
+        } catch (PortUnreachableException e) {
+            // Erro ICMP de uma tentativa anterior: trata como perda e segue com as retentativas
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        long timeoutMs = (long) INITIAL_TIMEOUT_MS << (attempt - 1);
+        this.retryScheduler.schedule(() -> this.sendAttempt(data, future, attempt + 1), timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_PACKET_SIZE);
+
+        while (this.channel.isOpen()) {
+            try {
+                buffer.clear();
+                this.channel.receive(buffer);
+                buffer.flip();
+
+                RequestMessage response;
+
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.array(), 0, buffer.limit()))) {
+                    response = (RequestMessage) in.readObject();
+                }
+
+                Long transactionId = BitTorrentUtils.extractData(response.getData(), DataType.TRANSACTION_ID);
+                CompletableFuture<RequestMessage> future = transactionId == null ? null : this.pendingRequests.get(transactionId);
+
+                // Respostas atrasadas de tentativas já atendidas são descartadas
+                if (future != null) {
+                    future.complete(response);
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (PortUnreachableException e) {
+                // Tracker fora do ar: as retentativas e o timeout da requisição já tratam a falha
+            } catch (Exception e) {
+                System.err.println("Erro ao receber resposta do Tracker: " + e.getMessage());
+            }
+        }
+    }
+}
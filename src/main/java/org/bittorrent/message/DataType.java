@@ -8,5 +8,6 @@ public enum DataType {
     PIECE_NAME,
     PIECE_DATA,
     SUCCESS,
+    TRANSACTION_ID,
     MESSAGE;
 }
@@ -4,5 +4,6 @@ public enum RequestType {
     JOIN_TRACKER,
     UPDATE_TRACKER,
     PIECE_REQUEST,
-    PIECE_RESPONSE;
+    PIECE_RESPONSE,
+    PEER_EXCHANGE;
 }
@@ -1,6 +1,7 @@
 package org.bittorrent.peer;
 
 import org.bittorrent.connection.TCPConnection;
+import org.bittorrent.connection.UDPTrackerClient;
 import org.bittorrent.message.DataType;
 import org.bittorrent.message.RequestMessage;
 import org.bittorrent.message.RequestType;
@@ -15,10 +16,13 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
 
 public class Peer {
 
@@ -27,16 +31,41 @@ public class Peer {
     private static final String FILES_BASE_PATH = "./peerFiles/";
     private static final int DOWNLOAD_SMALL_INTERVAL = 5000;
     private static final int DOWNLOAD_BIG_INTERVAL = 10000;
+    private static final int STREAMING_DOWNLOAD_INTERVAL = 500;
+    private static final int STREAMING_WINDOW = 4;
+    private static final int PIECE_WAIT_TIMEOUT = 1000;
+    private static final int MIN_ANNOUNCE_INTERVAL = 30;
+    private static final int DEFAULT_ANNOUNCE_INTERVAL = 60;
+    private static final int MAX_ANNOUNCE_INTERVAL = 120;
+    private static final int PEX_INTERVAL = 15;
+    private static final int PEX_MAX_PEERS = 3;
+    private static final long PIECES_INFO_TTL_MS = 3L * MAX_ANNOUNCE_INTERVAL * 1000;
+    private static final long OWN_PIECES_RESEND_MS = PIECES_INFO_TTL_MS - 2L * PEX_INTERVAL * 1000;
+    private static final long PIECE_CACHE_MAX_BYTES = Long.getLong("bittorrent.pieceCacheMaxBytes", 64L * 1024 * 1024);
 
     private final PeerInfo peerInfo;
     private final String trackerIp;
     private final int trackerPort;
     private final Path filesDirectory;
+    private final PieceCache pieceCache;
     private final Set<String> peerPieces = Collections.synchronizedSet(new HashSet<>());
     private final Map<String, List<PeerInfo>> piecesInfoMap = new HashMap<>();//Key:piece -> Value: List<PeerInfo>
+    private final Map<String, List<PeerInfo>> pexPendingDelta = new HashMap<>();// Entradas novas ainda não repassadas via PEX
+    private final Map<String, Long> piecesInfoLastSeen = new HashMap<>();// Key: pedaço@peer -> Value: última vez que Tracker ou PEX informou a entrada
+    private final Map<String, OwnPiecesSent> ownPiecesSentTo = new ConcurrentHashMap<>();// Key: endereço do peer -> Value: pedaços próprios já enviados a ele via PEX
     private final ScheduledExecutorService executor;
     private final Object downloadStrategyLock = new Object();
+    private final Object pieceArrivalLock = new Object();
+    private final Object downloaderWakeupLock = new Object();
+    private boolean downloaderWakeupPending = false;// Protegido por downloaderWakeupLock, para que um aviso antes da espera não se perca
+    private final AtomicInteger pexEntriesSinceAnnounce = new AtomicInteger();
     private Boolean isFirstDownloadExecution = true;
+    private UDPTrackerClient trackerClient;
+    private ScheduledExecutorService trackerScheduler;
+    private Set<String> lastAnnouncedPieces = Set.of();
+    private int announceInterval = DEFAULT_ANNOUNCE_INTERVAL;
+    private long lastTrackerReplyAt = 0;// Marca da última resposta do Tracker, na mesma escala de piecesInfoLastSeen
+    private volatile SequentialStream sequentialStream;// Stream lido em modo sequencial, null fora desse modo
 
     public Peer(String trackerIp, int trackerPort, int peerPort) {
         this.trackerIp = trackerIp;
@@ -50,6 +79,7 @@ public class Peer {
         }
 
         this.filesDirectory = Paths.get(FILES_BASE_PATH + "Peer_" + this.peerInfo.getIp() + "_" + this.peerInfo.getPort());
+        this.pieceCache = new PieceCache(this.filesDirectory, PIECE_CACHE_MAX_BYTES);
         this.executor = Executors.newScheduledThreadPool(3);
     }
 
@@ -58,9 +88,58 @@ public class Peer {
         this.createFilesDirectory();
         this.executor.submit(this::startServer);
         this.startTrackerUpdater();
+        this.startPeerExchange();
         this.executor.schedule(this::startDownloader, 3, TimeUnit.SECONDS);
     }
 
+    // Ativa o modo sequencial: pedaços na janela à frente do cursor de leitura têm prioridade e o restante segue rarest-first.
+    // Fechar o stream devolve o downloader ao modo normal, a menos que outro stream sequencial já o tenha substituído.
+    public synchronized InputStream openSequentialStream(List<String> pieceNames) {
+        // Cada abertura cria seu próprio objeto, que identifica o stream mesmo se a mesma lista for aberta de novo
+        SequentialStream stream = new SequentialStream(List.copyOf(pieceNames));
+        this.sequentialStream = stream;
+        this.wakeDownloader();
+
+        this.log("Modo sequencial ativado para " + stream.pieces.size() + " pedaço(s)", false);
+        return new PieceInputStream(stream.pieces.size(), pieceIndex -> this.awaitStreamingPiece(stream, pieceIndex), () -> this.closeSequentialStream(stream));
+    }
+
+    private synchronized void closeSequentialStream(SequentialStream stream) {
+        if (this.sequentialStream != stream) return;
+
+        this.sequentialStream = null;
+        this.log("Modo sequencial encerrado", false);
+    }
+
+    private byte[] awaitStreamingPiece(SequentialStream stream, int pieceIndex) throws IOException {
+        String pieceName = stream.pieces.get(pieceIndex);
+
+        if (stream.cursor != pieceIndex) {
+            stream.cursor = pieceIndex;
+
+            if (this.sequentialStream == stream) {
+                this.wakeDownloader();
+            }
+        }
+
+        // Confere o próprio arquivo em vez do resultado dos scans: como os pedaços são gravados com move atômico,
+        // o arquivo só existe quando está completo. O timeout cobre arquivos copiados manualmente para o diretório.
+        Path piecePath = this.filesDirectory.resolve(pieceName);
+
+        synchronized(this.pieceArrivalLock) {
+            while (!Files.exists(piecePath)) {
+                try {
+                    this.pieceArrivalLock.wait(PIECE_WAIT_TIMEOUT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Leitura sequencial interrompida aguardando o pedaço " + pieceName);
+                }
+            }
+        }
+
+        return this.pieceCache.read(pieceName);
+    }
+
     private void createFilesDirectory() {
         if (!Files.exists(this.filesDirectory)) {
             try {
@@ -77,6 +156,7 @@ public class Peer {
         try {
             Files.list(this.filesDirectory)
                     .map(path -> path.getFileName().toString())
+                    .filter(fileName -> !fileName.endsWith(FileUtils.TEMP_FILE_SUFFIX))
                     .forEach(this.peerPieces::add);
 
             this.log("Pedaços do diretório atualizadas. Contendo: " + this.peerPieces, false);
@@ -129,6 +209,9 @@ public class Peer {
             case PIECE_REQUEST:
                 response = this.sharePiece(request);
                 break;
+            case PEER_EXCHANGE:
+                this.handlePeerExchange(connection, request);
+                return;
             default:
                 response = this.buildErrorResponseMessage("Requisição inválida");
         }
@@ -146,13 +229,14 @@ public class Peer {
         }
 
         try {
-            byte[] fileData = FileUtils.readBytesFromFile(this.buildFilepath(pieceName));
+            byte[] fileData = this.pieceCache.get(pieceName);
 
             RequestMessage message = new RequestMessage(this.peerInfo.getPeerAddress(), RequestType.PIECE_RESPONSE);
             message.getData().put(DataType.SUCCESS, true);
             message.getData().put(DataType.PIECE_NAME, pieceName);
             message.getData().put(DataType.PIECE_DATA, fileData);
 
+            this.log("Pedaço " + pieceName + " compartilhado com " + peerInfoFromRequest.getPeerAddress() + ". Cache: " + this.pieceCache.describeStats(), false);
             return message;
         } catch (IOException e) {
             this.log("Erro ao compartilhar o pedaço " + pieceName + " com o peer " + peerInfoFromRequest.getPeerAddress() + e.getMessage(), true);
@@ -161,66 +245,358 @@ public class Peer {
     }
 
     private void startTrackerUpdater() {
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(this::sendUpdateToTracker, 0, 30, TimeUnit.SECONDS);
+        try {
+            this.trackerClient = new UDPTrackerClient(this.trackerIp, this.trackerPort);
+        } catch (IOException e) {
+            throw new RuntimeException("Não foi possível abrir o canal com o Tracker", e);
+        }
+
+        this.trackerScheduler = Executors.newSingleThreadScheduledExecutor();
+        this.trackerScheduler.execute(this::sendUpdateToTracker);
     }
 
+    // O envio não bloqueia a thread do agendador: a resposta é tratada quando chegar e agenda o próximo anúncio
     private void sendUpdateToTracker() {
-        this.scanPiecesFromDirectory();
+        try {
+            this.scanPiecesFromDirectory();
+            Set<String> announcedPieces;
+
+            synchronized(this.peerPieces) {
+                announcedPieces = new HashSet<>(this.peerPieces);
+            }
 
-        try (DatagramSocket socket = new DatagramSocket(this.peerInfo.getPort())) {
-            socket.setSoTimeout(TCPConnection.CONNECTION_TIMEOUT_MS);
             RequestMessage request = new RequestMessage(this.peerInfo.getPeerAddress(), RequestType.UPDATE_TRACKER);
             request.getData().put(DataType.IP, this.peerInfo.getIp());
             request.getData().put(DataType.PORT, this.peerInfo.getPort());
-            request.getData().put(DataType.PIECE_LIST, this.peerPieces);
+            request.getData().put(DataType.PIECE_LIST, announcedPieces);
 
-            ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-            ObjectOutputStream out = new ObjectOutputStream(byteOut);
-            out.writeObject(request);
+            this.log("Enviando pedaços para o Tracker. Aguardando lista do Tracker atualizada.", false);
+            this.trackerClient.send(request)
+                    .whenCompleteAsync((response, error) -> this.handleTrackerResponse(response, error, announcedPieces), this.trackerScheduler);
+        } catch (Exception e) {
+            // Sem isso a cadeia de anúncios seria interrompida de vez
+            this.log("Erro ao preparar update para o Tracker: " + e.getMessage(), true);
+            this.scheduleNextAnnounce(false, false);
+        }
+    }
 
-            byte[] data = byteOut.toByteArray();
-            InetAddress ip = InetAddress.getByName(this.trackerIp);
-            DatagramPacket sendPackage = new DatagramPacket(data, data.length, ip, trackerPort);
-            socket.send(sendPackage);
+    private void handleTrackerResponse(RequestMessage response, Throwable error, Set<String> announcedPieces) {
+        boolean swarmChanged = !announcedPieces.equals(this.lastAnnouncedPieces);
+        boolean pexDelivered = this.pexEntriesSinceAnnounce.getAndSet(0) > 0;
 
-            this.log("Envio de pedaços para o Tracker realizado com sucesso. Aguardando lista do Tracker atualizada.", false);
+        try {
+            if (error != null) {
+                this.log("Erro ao enviar update para o Tracker: " + error.getMessage(), true);
+                return;
+            }
 
-            byte[] receiveBuffer = new byte[65535];
-            DatagramPacket receivePacket = new DatagramPacket(receiveBuffer, receiveBuffer.length);
-            socket.receive(receivePacket);
+            this.lastAnnouncedPieces = announcedPieces;
+            int newEntries = this.mergeTrackerPiecesInfo(BitTorrentUtils.extractData(response.getData(), DataType.PIECES_INFO_MAP));
+            swarmChanged |= newEntries > 0;
 
-            ByteArrayInputStream byteIn = new ByteArrayInputStream(receivePacket.getData(), 0, receivePacket.getLength());
-            ObjectInputStream in = new ObjectInputStream(byteIn);
+            this.log("Referência da lista do Tracker atualizada!. Novas entradas: " + newEntries, false);
+        } catch (Exception e) {
+            this.log("Erro ao processar resposta do Tracker: " + e.getMessage(), true);
+        } finally {
+            this.scheduleNextAnnounce(swarmChanged, pexDelivered);
+        }
+    }
 
-            RequestMessage requestMessage = (RequestMessage) in.readObject();
-            this.piecesInfoMap.clear();
-            this.piecesInfoMap.putAll(BitTorrentUtils.extractData(requestMessage.getData(), DataType.PIECES_INFO_MAP));
+    // O PEX já mantém as listas atualizadas, então o intervalo só cai abaixo do padrão quando o swarm muda sem o PEX trazer novidades
+    // ou quando nenhum outro peer é conhecido, caso em que o PEX não tem com quem trocar.
+    // Ao semear um swarm estável os anúncios são espaçados até o máximo.
+    private void scheduleNextAnnounce(boolean swarmChanged, boolean pexDelivered) {
+        if ((swarmChanged && !pexDelivered) || !this.knowsOtherPeers()) {
+            this.announceInterval = MIN_ANNOUNCE_INTERVAL;
+        } else if (swarmChanged || this.hasMissingPieces()) {
+            this.announceInterval = DEFAULT_ANNOUNCE_INTERVAL;
+        } else {
+            this.announceInterval = Math.min(this.announceInterval * 2, MAX_ANNOUNCE_INTERVAL);
+        }
 
-            this.log("Referência da lista do Tracker atualizada!.", false);
-        } catch (Exception e) {
-            this.log("Erro ao enviar update para o Tracker: " + e.getMessage(), true);
+        this.log("Próximo anúncio ao Tracker em " + this.announceInterval + " segundos.", false);
+        this.trackerScheduler.schedule(this::sendUpdateToTracker, this.announceInterval, TimeUnit.SECONDS);
+    }
+
+    private boolean knowsOtherPeers() {
+        synchronized(this.piecesInfoMap) {
+            return this.piecesInfoMap.values().stream().flatMap(List::stream).anyMatch(this::isEligiblePeer);
+        }
+    }
+
+    private boolean hasMissingPieces() {
+        synchronized(this.piecesInfoMap) {
+            return this.piecesInfoMap.keySet().stream().anyMatch(piece -> !this.peerPieces.contains(piece));
+        }
+    }
+
+    private void startPeerExchange() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleAtFixedRate(this::sendPeerExchange, PEX_INTERVAL, PEX_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    // Troca com alguns peers conhecidos o delta de peers/pedaços aprendidos desde a última rodada, nos dois sentidos
+    private void sendPeerExchange() {
+        this.expirePiecesInfo();
+        List<PeerInfo> targets = this.pickPeerExchangeTargets();
+
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        // O delta só sai da lista pendente depois de ao menos uma troca bem-sucedida
+        Map<String, List<PeerInfo>> pendingDelta = this.copyPendingDelta();
+        boolean delivered = false;
+
+        for (PeerInfo target : targets) {
+            TCPConnection connection = null;
+            OwnPiecesSent previousSent = this.ownPiecesSentTo.get(target.getPeerAddress());
+            OwnPiecesSent currentSent = this.nextOwnPiecesSent(previousSent);
+
+            try {
+                connection = new TCPConnection(target);
+                connection.sendMessage(this.buildPeerExchangeMessage(pendingDelta, previousSent, currentSent));
+                RequestMessage response = connection.receiveMessage();
+
+                if (response == null || response.getRequestType() != RequestType.PEER_EXCHANGE) {
+                    continue;
+                }
+
+                delivered = true;
+                this.ownPiecesSentTo.put(target.getPeerAddress(), currentSent);
+                int newEntries = this.mergePiecesInfo(BitTorrentUtils.extractData(response.getData(), DataType.PIECES_INFO_MAP));
+                this.pexEntriesSinceAnnounce.addAndGet(newEntries);
+                this.log("PEX com " + target.getPeerAddress() + " concluído. Novas entradas: " + newEntries, false);
+            } catch (Exception e) {
+                this.log("Erro no PEX com o peer " + target.getPeerAddress() + ": " + e.getMessage(), true);
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        }
+
+        if (delivered) {
+            this.removeDeliveredDelta(pendingDelta);
+        }
+    }
+
+    // Responde com o próprio delta pendente, que segue a mesma regra: só sai da lista se a resposta for enviada
+    private void handlePeerExchange(TCPConnection connection, RequestMessage request) {
+        Map<String, List<PeerInfo>> receivedInfo = BitTorrentUtils.extractData(request.getData(), DataType.PIECES_INFO_MAP);
+        int newEntries = this.mergePiecesInfo(receivedInfo);
+        this.pexEntriesSinceAnnounce.addAndGet(newEntries);
+        this.log("PEX recebido de " + request.getSenderAddress() + ". Novas entradas: " + newEntries, false);
+
+        Map<String, List<PeerInfo>> pendingDelta = this.copyPendingDelta();
+        OwnPiecesSent previousSent = this.ownPiecesSentTo.get(request.getSenderAddress());
+        OwnPiecesSent currentSent = this.nextOwnPiecesSent(previousSent);
+
+        if (connection.sendMessage(this.buildPeerExchangeMessage(pendingDelta, previousSent, currentSent))) {
+            this.ownPiecesSentTo.put(request.getSenderAddress(), currentSent);
+            this.removeDeliveredDelta(pendingDelta);
+        }
+    }
+
+    private RequestMessage buildPeerExchangeMessage(Map<String, List<PeerInfo>> pendingDelta, OwnPiecesSent previousSent, OwnPiecesSent currentSent) {
+        Map<String, List<PeerInfo>> delta = new HashMap<>(pendingDelta);
+        BitTorrentUtils.mergePiecesInfo(delta, this.buildOwnPiecesInfo(this.findOwnPiecesToSend(previousSent, currentSent)));
+
+        RequestMessage message = new RequestMessage(this.peerInfo.getPeerAddress(), RequestType.PEER_EXCHANGE);
+        message.getData().put(DataType.IP, this.peerInfo.getIp());
+        message.getData().put(DataType.PORT, this.peerInfo.getPort());
+        message.getData().put(DataType.PIECES_INFO_MAP, delta);
+
+        return message;
+    }
+
+    private Map<String, List<PeerInfo>> copyPendingDelta() {
+        synchronized(this.piecesInfoMap) {
+            return new HashMap<>(this.pexPendingDelta);
+        }
+    }
+
+    // Remove só o que foi enviado, preservando entradas que chegaram durante a rodada
+    private void removeDeliveredDelta(Map<String, List<PeerInfo>> deliveredDelta) {
+        synchronized(this.piecesInfoMap) {
+            deliveredDelta.forEach((piece, deliveredPeers) -> this.pexPendingDelta.computeIfPresent(piece, (key, pendingPeers) -> {
+                List<PeerInfo> remainingPeers = pendingPeers.stream()
+                        .filter(peer -> deliveredPeers.stream().noneMatch(delivered -> delivered.getPeerAddress().equals(peer.getPeerAddress())))
+                        .toList();
+                return remainingPeers.isEmpty() ? null : new ArrayList<>(remainingPeers);
+            }));
+        }
+    }
+
+    // Os pedaços próprios são reenviados por completo só quando a entrada estaria para expirar no outro peer
+    private OwnPiecesSent nextOwnPiecesSent(OwnPiecesSent previousSent) {
+        Set<String> ownPieces;
+
+        synchronized(this.peerPieces) {
+            ownPieces = Set.copyOf(this.peerPieces);
+        }
+
+        long now = System.currentTimeMillis();
+        boolean fullResend = previousSent == null || now - previousSent.fullSentAt() >= OWN_PIECES_RESEND_MS;
+
+        return new OwnPiecesSent(ownPieces, fullResend ? now : previousSent.fullSentAt());
+    }
+
+    private Set<String> findOwnPiecesToSend(OwnPiecesSent previousSent, OwnPiecesSent currentSent) {
+        if (previousSent == null || previousSent.fullSentAt() != currentSent.fullSentAt()) {
+            return currentSent.pieces();
+        }
+
+        Set<String> newPieces = new HashSet<>(currentSent.pieces());
+        newPieces.removeAll(previousSent.pieces());
+        return newPieces;
+    }
+
+    private List<PeerInfo> pickPeerExchangeTargets() {
+        Map<String, PeerInfo> knownPeers = new HashMap<>();
+
+        synchronized(this.piecesInfoMap) {
+            this.piecesInfoMap.values().stream()
+                    .flatMap(List::stream)
+                    .filter(this::isEligiblePeer)
+                    .forEach(peer -> knownPeers.putIfAbsent(peer.getPeerAddress(), peer));
+        }
+
+        List<PeerInfo> targets = new ArrayList<>(knownPeers.values());
+        Collections.shuffle(targets);
+        return targets.subList(0, Math.min(PEX_MAX_PEERS, targets.size()));
+    }
+
+    private Map<String, List<PeerInfo>> buildOwnPiecesInfo(Set<String> pieces) {
+        Map<String, List<PeerInfo>> ownPiecesInfo = new HashMap<>();
+
+        for (String piece : pieces) {
+            ownPiecesInfo.put(piece, new ArrayList<>(List.of(this.peerInfo)));
+        }
+
+        return ownPiecesInfo;
+    }
+
+    // Junta informações do Tracker ou de outros peers sem descartar o que já é conhecido
+    private int mergePiecesInfo(Map<String, List<PeerInfo>> receivedInfo) {
+        if (receivedInfo == null) {
+            return 0;
+        }
+
+        synchronized(this.piecesInfoMap) {
+            Map<String, List<PeerInfo>> added = new HashMap<>();
+            int newEntries = BitTorrentUtils.mergePiecesInfo(this.piecesInfoMap, receivedInfo, added);
+            BitTorrentUtils.mergePiecesInfo(this.pexPendingDelta, added);
+
+            long now = this.nextLastSeenStamp();
+            receivedInfo.forEach((piece, peers) -> peers.stream()
+                    .filter(peer -> peer != null && peer.getPeerAddress() != null)
+                    .forEach(peer -> this.piecesInfoLastSeen.put(this.buildEntryKey(piece, peer), now)));
+
+            return newEntries;
+        }
+    }
+
+    // A lista do Tracker é a fonte oficial dos peers que ela contém: pedaços desses peers ausentes na lista são descartados,
+    // exceto os que o PEX informou depois da resposta anterior do Tracker, pois ele anuncia com menos frequência que o PEX roda
+    private int mergeTrackerPiecesInfo(Map<String, List<PeerInfo>> trackerInfo) {
+        if (trackerInfo == null) {
+            return 0;
+        }
+
+        Set<String> trackerEntries = new HashSet<>();
+        Set<String> coveredPeers = new HashSet<>();
+
+        trackerInfo.forEach((piece, peers) -> peers.stream()
+                .filter(peer -> peer != null && peer.getPeerAddress() != null)
+                .forEach(peer -> {
+                    trackerEntries.add(this.buildEntryKey(piece, peer));
+                    coveredPeers.add(peer.getPeerAddress());
+                }));
+
+        synchronized(this.piecesInfoMap) {
+            long previousTrackerReply = this.lastTrackerReplyAt;
+            this.removePiecesInfoEntries((piece, peer) -> {
+                String entryKey = this.buildEntryKey(piece, peer);
+                return coveredPeers.contains(peer.getPeerAddress())
+                        && !trackerEntries.contains(entryKey)
+                        && this.piecesInfoLastSeen.getOrDefault(entryKey, 0L) <= previousTrackerReply;
+            });
+
+            int newEntries = this.mergePiecesInfo(trackerInfo);
+            this.lastTrackerReplyAt = this.nextLastSeenStamp();
+            return newEntries;
         }
     }
 
+    // Sempre maior que a última resposta do Tracker, para que uma entrada vista pelo PEX logo depois dela não pareça antiga
+    private long nextLastSeenStamp() {
+        return Math.max(System.currentTimeMillis(), this.lastTrackerReplyAt + 1);
+    }
+
+    // Descarta entradas que nem o Tracker nem o PEX confirmaram recentemente, como peers que saíram do swarm
+    private void expirePiecesInfo() {
+        long expiration = System.currentTimeMillis() - PIECES_INFO_TTL_MS;
+
+        synchronized(this.piecesInfoMap) {
+            this.removePiecesInfoEntries((piece, peer) -> this.piecesInfoLastSeen.getOrDefault(this.buildEntryKey(piece, peer), 0L) < expiration);
+        }
+    }
+
+    private void removePiecesInfoEntries(BiPredicate<String, PeerInfo> shouldRemove) {
+        for (Map<String, List<PeerInfo>> infoMap : List.of(this.piecesInfoMap, this.pexPendingDelta)) {
+            Iterator<Map.Entry<String, List<PeerInfo>>> iterator = infoMap.entrySet().iterator();
+
+            while (iterator.hasNext()) {
+                Map.Entry<String, List<PeerInfo>> entry = iterator.next();
+                List<PeerInfo> remainingPeers = entry.getValue().stream()
+                        .filter(peer -> !shouldRemove.test(entry.getKey(), peer))
+                        .toList();
+
+                if (remainingPeers.isEmpty()) {
+                    iterator.remove();
+                } else if (remainingPeers.size() != entry.getValue().size()) {
+                    entry.setValue(new ArrayList<>(remainingPeers));
+                }
+            }
+        }
+
+        this.piecesInfoLastSeen.keySet().removeIf(entryKey -> {
+            String piece = entryKey.substring(0, entryKey.lastIndexOf('@'));
+            List<PeerInfo> peers = this.piecesInfoMap.getOrDefault(piece, List.of());
+            return peers.stream().noneMatch(peer -> entryKey.equals(this.buildEntryKey(piece, peer)));
+        });
+    }
+
+    private String buildEntryKey(String piece, PeerInfo peer) {
+        return piece + "@" + peer.getPeerAddress();
+    }
+
     private void startDownloader() {
         try {
             while (true) {
                 this.scanPiecesFromDirectory();
-                String pieceName;
+                String pieceName = this.findStreamingWindowPiece();
+                boolean isStreamingPiece = pieceName != null;
 
-                synchronized(this.downloadStrategyLock) {
-                    pieceName = isFirstDownloadExecution ? this.findRarestMissingPiece() : this.findRandomMissingPiece();
+                if (!isStreamingPiece) {
+                    synchronized(this.downloadStrategyLock) {
+                        pieceName = isFirstDownloadExecution || this.sequentialStream != null ? this.findRarestMissingPiece() : this.findRandomMissingPiece();
+                    }
                 }
 
                 if (pieceName == null) {
                     this.log("Nenhum pedaço novo para baixar no momento. Tentando novamente em " + (DOWNLOAD_BIG_INTERVAL / 1000) + " segundos.", false);
-                    Thread.sleep(DOWNLOAD_BIG_INTERVAL);
+                    this.waitForDownloadTurn(DOWNLOAD_BIG_INTERVAL);
                     continue;
                 }
 
                 this.log("Inicio tentativa de baixar o pedaço: " + pieceName, false);
-                List<PeerInfo> peersWithPiece = this.piecesInfoMap.get(pieceName);
+                List<PeerInfo> peersWithPiece;
+
+                synchronized(this.piecesInfoMap) {
+                    peersWithPiece = this.piecesInfoMap.getOrDefault(pieceName, List.of());
+                }
 
                 List<PeerInfo> eligiblePeers = peersWithPiece.stream()
                         .filter(this::isEligiblePeer)
@@ -228,7 +604,7 @@ public class Peer {
 
                 if (eligiblePeers.isEmpty()) {
                     this.log("Nenhum peer elegível encontrado para o pedaço " + pieceName, false);
-                    Thread.sleep(1000);
+                    this.waitForDownloadTurn(1000);
                     continue;
                 }
 
@@ -238,7 +614,8 @@ public class Peer {
                 this.log( chosenPeer.getPeerAddress() + " foi o peer escolhido para download do pedaço " + pieceName, false);
                 this.downloadPiece(chosenPeer, pieceName);
 
-                Thread.sleep(DOWNLOAD_SMALL_INTERVAL);
+                // Enquanto há stream aberto todo download usa o intervalo curto, inclusive os de fora da janela
+                this.waitForDownloadTurn(this.sequentialStream == null ? DOWNLOAD_SMALL_INTERVAL : STREAMING_DOWNLOAD_INTERVAL);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -246,6 +623,53 @@ public class Peer {
         }
     }
 
+    // Espera o intervalo entre downloads, encerrando antes se o modo sequencial precisar de um novo pedaço
+    private void waitForDownloadTurn(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized(this.downloaderWakeupLock) {
+            long remaining = timeoutMs;
+
+            while (!this.downloaderWakeupPending && remaining > 0) {
+                this.downloaderWakeupLock.wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+
+            this.downloaderWakeupPending = false;
+        }
+    }
+
+    private void wakeDownloader() {
+        synchronized(this.downloaderWakeupLock) {
+            this.downloaderWakeupPending = true;
+            this.downloaderWakeupLock.notifyAll();
+        }
+    }
+
+    private String findStreamingWindowPiece() {
+        SequentialStream stream = this.sequentialStream;
+
+        if (stream == null) {
+            return null;
+        }
+
+        int windowStart = stream.cursor;
+        int windowEnd = Math.min(windowStart + STREAMING_WINDOW, stream.pieces.size());
+
+        synchronized(this.piecesInfoMap) {
+            for (int i = windowStart; i < windowEnd; i++) {
+                String pieceName = stream.pieces.get(i);
+                List<PeerInfo> peersWithPiece = this.piecesInfoMap.get(pieceName);
+
+                if (!this.peerPieces.contains(pieceName) && peersWithPiece != null && peersWithPiece.stream().anyMatch(this::isEligiblePeer)) {
+                    return pieceName;
+                }
+            }
+        }
+
+        return null;
+    }
+
     private String findRandomMissingPiece() {
         synchronized(this.piecesInfoMap) {
             List<String> missingPieces = this.piecesInfoMap.keySet().stream()
@@ -278,7 +702,7 @@ public class Peer {
             this.isFirstDownloadExecution = false;
         }
 
-        try (Socket socket = new Socket(recipientPeer.getIp(), recipientPeer.getPort());
+        try (Socket socket = this.connectTo(recipientPeer);
              ObjectOutputStream out = new ObjectOutputStream(socket.getOutputStream());
              ObjectInputStream in = new ObjectInputStream(socket.getInputStream())) {
 
@@ -304,8 +728,13 @@ public class Peer {
             }
 
             FileUtils.createFileFromBytes(buildFilepath(pieceName), BitTorrentUtils.extractData(response.getData(), DataType.PIECE_DATA));
+            this.pieceCache.invalidate(pieceName);
             this.scanPiecesFromDirectory();
 
+            synchronized(this.pieceArrivalLock) {
+                this.pieceArrivalLock.notifyAll();
+            }
+
             this.log("Pedaço " + pieceName + " obtido com sucesso de " + recipientPeer.getPeerAddress(), false);
         } catch (Exception e) {
             this.log("Erro ao solicitar pedaço ao peer " + recipientPeer.getPeerAddress() + ". ", true);
@@ -313,6 +742,19 @@ public class Peer {
         }
     }
 
+    private Socket connectTo(PeerInfo recipientPeer) throws IOException {
+        Socket socket = new Socket();
+
+        try {
+            socket.connect(new InetSocketAddress(recipientPeer.getIp(), recipientPeer.getPort()), TCPConnection.CONNECTION_TIMEOUT_MS);
+            socket.setSoTimeout(TCPConnection.CONNECTION_TIMEOUT_MS);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
     private RequestMessage buildErrorResponseMessage(String errorMessage) {
         RequestMessage requestMessage = new RequestMessage(this.peerInfo.getPeerAddress(), RequestType.PIECE_REQUEST);
         requestMessage.getData().put(DataType.IP, this.peerInfo.getIp());
@@ -340,4 +782,18 @@ public class Peer {
             System.out.println(timestamp + PEER_TAG + message);
         }
     }
-}
\ No newline at end of file
+
+    // Ordem dos pedaços e posição de leitura de um stream sequencial; o cursor pertence ao stream, não ao Peer
+    private static class SequentialStream {
+        private final List<String> pieces;
+        private volatile int cursor = 0;
+
+        private SequentialStream(List<String> pieces) {
+            this.pieces = pieces;
+        }
+    }
+
+    // fullSentAt: quando o conjunto completo de pedaços próprios foi enviado pela última vez
+    private record OwnPiecesSent(Set<String> pieces, long fullSentAt) {
+    }
+}
@@ -0,0 +1,219 @@
+package org.bittorrent.peer;
+
+import org.bittorrent.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache de leitura dos pedaços servidos, limitado por bytes. A remoção segue LFU e um pedaço novo só entra
+// no lugar da vítima se já foi pedido pelo menos tantas vezes quanto ela (admissão no estilo TinyLFU).
+// Cada acerto confere data de modificação e tamanho do arquivo, então um pedaço substituído no diretório é relido.
+public class PieceCache {
+
+    private static final int FREQUENCY_AGING_FACTOR = 10;
+
+    private final Path filesDirectory;
+    private final long maxBytes;
+    private final Map<String, CachedPiece> entries = new LinkedHashMap<>();
+    private final Map<String, Integer> frequencies = new HashMap<>();
+    private final Map<String, CompletableFuture<byte[]>> inFlightReads = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private long usedBytes = 0;
+    private int accessesSinceAging = 0;
+
+    public PieceCache(Path filesDirectory, long maxBytes) {
+        this.filesDirectory = filesDirectory;
+        this.maxBytes = maxBytes;
+    }
+
+    public byte[] get(String pieceName) throws IOException {
+        synchronized(this) {
+            this.recordAccess(pieceName);
+        }
+
+        byte[] cached = this.lookup(pieceName);
+
+        if (cached != null) {
+            this.hits.incrementAndGet();
+            return cached;
+        }
+
+        this.misses.incrementAndGet();
+
+        // Leituras simultâneas do mesmo pedaço aguardam uma única leitura do disco
+        CompletableFuture<byte[]> newRead = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = this.inFlightReads.putIfAbsent(pieceName, newRead);
+
+        if (inFlight != null) {
+            return this.await(inFlight);
+        }
+
+        try {
+            Path piecePath = this.filesDirectory.resolve(pieceName);
+            FileVersion version = this.readVersion(piecePath);
+            byte[] data = FileUtils.readBytesFromFile(piecePath.toString());
+            this.admit(pieceName, new CachedPiece(data, version));
+            newRead.complete(data);
+            return data;
+        } catch (IOException | RuntimeException e) {
+            newRead.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlightReads.remove(pieceName, newRead);
+        }
+    }
+
+    // Leitura local (ex.: modo sequencial): aproveita o cache, mas não conta acesso nem estatísticas e não admite o pedaço,
+    // para não distorcer a política de remoção e a taxa de acerto do compartilhamento
+    public byte[] read(String pieceName) throws IOException {
+        byte[] cached = this.lookup(pieceName);
+        return cached != null ? cached : FileUtils.readBytesFromFile(this.filesDirectory.resolve(pieceName).toString());
+    }
+
+    public synchronized void invalidate(String pieceName) {
+        CachedPiece removed = this.entries.remove(pieceName);
+
+        if (removed != null) {
+            this.usedBytes -= removed.data().length;
+        }
+    }
+
+    public double getHitRate() {
+        long total = this.hits.get() + this.misses.get();
+        return total == 0 ? 0 : (double) this.hits.get() / total;
+    }
+
+    public synchronized String describeStats() {
+        return String.format("acertos=%d, faltas=%d, taxa de acerto=%.1f%%, remoções=%d, rejeitados=%d, uso=%d/%d bytes",
+                this.hits.get(), this.misses.get(), this.getHitRate() * 100, this.evictions.get(), this.rejections.get(), this.usedBytes, this.maxBytes);
+    }
+
+    // Retorna o pedaço em cache se o arquivo não mudou desde a leitura, descartando a entrada caso contrário
+    private byte[] lookup(String pieceName) throws IOException {
+        CachedPiece cached;
+
+        synchronized(this) {
+            cached = this.entries.get(pieceName);
+        }
+
+        if (cached == null) {
+            return null;
+        }
+
+        FileVersion currentVersion;
+
+        try {
+            currentVersion = this.readVersion(this.filesDirectory.resolve(pieceName));
+        } catch (NoSuchFileException e) {
+            currentVersion = null;
+        }
+
+        if (cached.version().equals(currentVersion)) {
+            return cached.data();
+        }
+
+        synchronized(this) {
+            if (this.entries.get(pieceName) == cached) {
+                this.invalidate(pieceName);
+            }
+        }
+
+        return null;
+    }
+
+    private FileVersion readVersion(Path piecePath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(piecePath, BasicFileAttributes.class);
+        return new FileVersion(attributes.lastModifiedTime(), attributes.size());
+    }
+
+    private synchronized void admit(String pieceName, CachedPiece piece) {
+        byte[] data = piece.data();
+
+        if (data.length > this.maxBytes) {
+            return;
+        }
+
+        this.invalidate(pieceName);
+
+        int candidateFrequency = this.frequencies.getOrDefault(pieceName, 0);
+
+        while (this.usedBytes + data.length > this.maxBytes) {
+            String victim = this.findLeastFrequent();
+
+            if (this.frequencies.getOrDefault(victim, 0) > candidateFrequency) {
+                this.rejections.incrementAndGet();
+                return;
+            }
+
+            this.usedBytes -= this.entries.remove(victim).data().length;
+            this.evictions.incrementAndGet();
+        }
+
+        this.entries.put(pieceName, piece);
+        this.usedBytes += data.length;
+    }
+
+    private String findLeastFrequent() {
+        String victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+
+        // Em empate vence o mais antigo, pois o LinkedHashMap itera em ordem de inserção
+        for (String pieceName : this.entries.keySet()) {
+            int frequency = this.frequencies.getOrDefault(pieceName, 0);
+
+            if (frequency < victimFrequency) {
+                victim = pieceName;
+                victimFrequency = frequency;
+            }
+        }
+
+        return victim;
+    }
+
+    // Contadores são reduzidos pela metade periodicamente para que pedaços antes populares possam sair do cache
+    private void recordAccess(String pieceName) {
+        this.frequencies.merge(pieceName, 1, Integer::sum);
+        this.accessesSinceAging++;
+
+        if (this.accessesSinceAging >= FREQUENCY_AGING_FACTOR * Math.max(this.frequencies.size(), this.entries.size() + 1)) {
+            this.frequencies.replaceAll((piece, frequency) -> frequency / 2);
+            this.frequencies.values().removeIf(frequency -> frequency == 0);
+            this.accessesSinceAging = 0;
+        }
+    }
+
+    private record FileVersion(FileTime lastModified, long size) {
+    }
+
+    private record CachedPiece(byte[] data, FileVersion version) {
+    }
+
+    private byte[] await(CompletableFuture<byte[]> read) throws IOException {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Leitura do pedaço interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.bittorrent.peer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Lê em ordem o conteúdo formado por uma sequência de pedaços, bloqueando apenas quando o próximo pedaço ainda não foi baixado
+public class PieceInputStream extends InputStream {
+
+    public interface PieceSource {
+        byte[] awaitPiece(int pieceIndex) throws IOException;
+    }
+
+    private final int pieceCount;
+    private final PieceSource pieceSource;
+    private final Runnable onClose;
+    private int nextPieceIndex = 0;
+    private byte[] currentPiece;
+    private int offset = 0;
+    private boolean closed = false;
+
+    public PieceInputStream(int pieceCount, PieceSource pieceSource, Runnable onClose) {
+        this.pieceCount = pieceCount;
+        this.pieceSource = pieceSource;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.ensurePiece()) return -1;
+
+        return this.currentPiece[this.offset++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!this.ensurePiece()) return -1;
+
+        int count = Math.min(len, this.currentPiece.length - this.offset);
+        System.arraycopy(this.currentPiece, this.offset, buffer, off, count);
+        this.offset += count;
+
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return this.currentPiece == null ? 0 : this.currentPiece.length - this.offset;
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) return;
+
+        this.closed = true;
+        this.currentPiece = null;
+        this.onClose.run();
+    }
+
+    private boolean ensurePiece() throws IOException {
+        if (this.closed) throw new IOException("Stream fechado");
+
+        while (this.currentPiece == null || this.offset >= this.currentPiece.length) {
+            if (this.nextPieceIndex >= this.pieceCount) return false;
+
+            this.currentPiece = this.pieceSource.awaitPiece(this.nextPieceIndex++);
+            this.offset = 0;
+        }
+
+        return true;
+    }
+}
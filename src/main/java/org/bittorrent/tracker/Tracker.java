@@ -7,27 +7,52 @@ import org.bittorrent.peer.PeerInfo;
 import org.bittorrent.utils.BitTorrentUtils;
 
 import java.io.*;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class Tracker {
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
     private static final String TRACKER_TAG = "[Tracker]: ";
+    private static final int MAX_PACKET_SIZE = 65507;
+    private static final int RECEIVER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int WORKER_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int WORKER_QUEUE_CAPACITY = 256;
+    private static final int BUFFER_POOL_SIZE = 256;
+    private static final int MAX_BATCH_SIZE = 32;
+    private static final int SOCKET_RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final String SNAPSHOT_PATH = "./trackerFiles/tracker.snapshot";
+    private static final int SNAPSHOT_INTERVAL = 10;
+    private static final int PROVISIONAL_PEER_TTL = 240; // Duas vezes o intervalo máximo de anúncio dos peers
+    private static final int SHUTDOWN_TIMEOUT = 5;
 
     private final int trackerPort;
     private final String trackerIp;
-    private DatagramSocket trackerSocket;
-    private final ScheduledExecutorService executor;
+    private final List<DatagramChannel> trackerChannels = new ArrayList<>();
+    private final BlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+    private final ExecutorService receiverExecutor;
+    private final ThreadPoolExecutor workerExecutor;
     private final Map<String, List<PeerInfo>> piecesInfoMap = new ConcurrentHashMap<>();// Key:piece -> Value: List<PeerInfo>
+    private final Set<String> provisionalPeers = ConcurrentHashMap.newKeySet();// Peers carregados do snapshot que ainda não reanunciaram
+    private final TrackerSnapshot snapshot = new TrackerSnapshot(Paths.get(SNAPSHOT_PATH));
+    private final AtomicBoolean snapshotDirty = new AtomicBoolean(false);
+    private final ReadWriteLock provisionalPeersLock = new ReentrantReadWriteLock();// Anúncios (leitura) não se intercalam com a expiração (escrita)
+    private final ScheduledExecutorService snapshotExecutor = Executors.newSingleThreadScheduledExecutor();
 
     public Tracker(int trackerPort) {
         this.trackerPort = trackerPort;
@@ -38,39 +63,224 @@ public class Tracker {
             throw new RuntimeException(e);
         }
 
-        this.executor = Executors.newScheduledThreadPool(3);
+        for (int i = 0; i < BUFFER_POOL_SIZE; i++) {
+            this.bufferPool.add(ByteBuffer.allocateDirect(MAX_PACKET_SIZE));
+        }
+
+        this.receiverExecutor = Executors.newFixedThreadPool(RECEIVER_THREADS);
+        // Com a fila cheia a própria thread receptora processa o lote, freando a leitura do socket
+        this.workerExecutor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY), new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     public void start() {
         this.log("Tracker iniciado na porta " + trackerPort, false);
 
+        this.loadSnapshot();
+        this.snapshotExecutor.scheduleAtFixedRate(this::writeSnapshot, SNAPSHOT_INTERVAL, SNAPSHOT_INTERVAL, TimeUnit.SECONDS);
+        this.snapshotExecutor.schedule(this::expireProvisionalPeers, PROVISIONAL_PEER_TTL, TimeUnit.SECONDS);
+
+        try {
+            this.openChannels();
+
+            for (int i = 0; i < RECEIVER_THREADS; i++) {
+                DatagramChannel channel = this.trackerChannels.get(i % this.trackerChannels.size());
+                this.receiverExecutor.submit(() -> this.receiveLoop(channel));
+            }
+
+            this.receiverExecutor.shutdown();
+            this.receiverExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (IOException e) {
+            this.log("Erro no socket: " + e.getMessage(), true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.log("Tracker interrompido.", true);
+        } finally {
+            this.closeChannels();
+            this.receiverExecutor.shutdownNow();
+            this.workerExecutor.shutdown();
+            this.snapshotExecutor.shutdownNow();
+            // O snapshot final só é gravado depois que os workers e a gravação periódica terminaram, evitando duas escritas no mesmo .tmp
+            this.awaitTermination(this.workerExecutor);
+            this.awaitTermination(this.snapshotExecutor);
+            this.writeSnapshot();
+        }
+    }
+
+    private void awaitTermination(ExecutorService executorService) {
+        boolean interrupted = Thread.interrupted();
+
         try {
-            this.trackerSocket = new DatagramSocket(trackerPort);
-            byte[] buffer = new byte[1024];
+            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                this.log("Tarefas ainda em execução após " + SHUTDOWN_TIMEOUT + " segundos de espera no encerramento", true);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Estado restaurado fica provisório até o peer reanunciar, assim peers respondem com a lista conhecida logo após o reinício
+    private void loadSnapshot() {
+        try {
+            Map<String, List<PeerInfo>> restored = this.snapshot.read();
+            this.piecesInfoMap.putAll(restored);
+            restored.values().forEach(peers -> peers.forEach(peer -> this.provisionalPeers.add(peer.getPeerAddress())));
+
+            this.log("Snapshot carregado com " + restored.size() + " pedaço(s) e " + this.provisionalPeers.size() + " peer(s) provisório(s)", false);
+        } catch (IOException e) {
+            this.log("Erro ao carregar snapshot, iniciando sem estado: " + e.getMessage(), true);
+        }
+    }
+
+    // Roda em scheduleAtFixedRate: qualquer exceção que escapasse cancelaria as gravações seguintes
+    private synchronized void writeSnapshot() {
+        if (!this.snapshotDirty.getAndSet(false)) return;
+
+        try {
+            this.snapshot.write(this.piecesInfoMap);
+        } catch (Exception e) {
+            this.snapshotDirty.set(true);
+            this.log("Erro ao gravar snapshot: " + e.getMessage(), true);
+        }
+    }
+
+    // Só expira quem esta rotina de fato retirou do conjunto; quem reanunciou já saiu dele e continua visível
+    private void expireProvisionalPeers() {
+        Set<String> expiredPeers = new HashSet<>();
+        this.provisionalPeersLock.writeLock().lock();
+
+        try {
+            for (String address : new ArrayList<>(this.provisionalPeers)) {
+                if (this.provisionalPeers.remove(address)) {
+                    expiredPeers.add(address);
+                }
+            }
+
+            if (expiredPeers.isEmpty()) return;
+
+            for (String piece : this.piecesInfoMap.keySet()) {
+                this.removePeersFromPiece(piece, expiredPeers);
+            }
+        } finally {
+            this.provisionalPeersLock.writeLock().unlock();
+        }
+
+        this.log("Removidos " + expiredPeers.size() + " peer(s) provisório(s) que não reanunciaram: " + expiredPeers, false);
+    }
+
+    // Com SO_REUSEPORT cada thread receptora tem seu próprio canal e o kernel distribui os pacotes entre eles.
+    // O primeiro canal faz o bind sem a opção, para que um segundo Tracker na mesma porta falhe em vez de dividir o tráfego;
+    // só depois do bind ele passa a aceitar os canais extras deste processo.
+    private void openChannels() throws IOException {
+        DatagramChannel firstChannel = this.bindChannel(DatagramChannel.open(), false);
+        this.trackerChannels.add(firstChannel);
+
+        if (firstChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+            firstChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
 
-            // Loop de recepção das mensagens
-            while (!this.trackerSocket.isClosed()) {
-                DatagramPacket datagramPacket = new DatagramPacket(buffer, buffer.length);
-                this.trackerSocket.receive(datagramPacket);
-                this.executor.submit(() -> this.handleMessage(datagramPacket));
+            for (int i = 1; i < RECEIVER_THREADS; i++) {
+                this.trackerChannels.add(this.bindChannel(DatagramChannel.open(), true));
+            }
+        }
+
+        this.log("Recebendo em " + this.trackerChannels.size() + " canal(is) com " + RECEIVER_THREADS + " thread(s) receptora(s) e " + WORKER_THREADS + " worker(s)", false);
+    }
+
+    private DatagramChannel bindChannel(DatagramChannel channel, boolean reusePort) throws IOException {
+        if (reusePort) {
+            channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_RECEIVE_BUFFER_SIZE);
+        channel.bind(new InetSocketAddress(this.trackerPort));
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    private void closeChannels() {
+        for (DatagramChannel channel : this.trackerChannels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                this.log("Erro ao fechar o canal: " + e.getMessage(), true);
+            }
+        }
+    }
+
+    // Loop de recepção das mensagens. Cada despertar drena até MAX_BATCH_SIZE pacotes, e cada pacote usa um buffer próprio do pool
+    private void receiveLoop(DatagramChannel channel) {
+        ByteBuffer buffer = null;
+
+        try (Selector selector = Selector.open()) {
+            channel.register(selector, SelectionKey.OP_READ);
+
+            while (channel.isOpen()) {
+                selector.select();
+                selector.selectedKeys().clear();
+                List<ReceivedPacket> batch = new ArrayList<>();
+
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    // Só bloqueia no pool sem lote pendente; com lote em mãos, o envia antes de esperar por buffers
+                    if (buffer == null) {
+                        buffer = batch.isEmpty() ? this.bufferPool.take() : this.bufferPool.poll();
+                    }
+
+                    if (buffer == null) {
+                        break;
+                    }
+
+                    SocketAddress clientAddress = channel.receive(buffer);
+
+                    if (clientAddress == null) {
+                        break;
+                    }
+
+                    buffer.flip();
+                    batch.add(new ReceivedPacket(buffer, clientAddress));
+                    buffer = null;
+                }
+
+                if (!batch.isEmpty()) {
+                    this.workerExecutor.execute(() -> this.handleBatch(channel, batch));
+                }
             }
         } catch (IOException e) {
             this.log("Erro no socket: " + e.getMessage(), true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
-            if (this.trackerSocket != null && !this.trackerSocket.isClosed()) {
-                this.trackerSocket.close();
+            if (buffer != null) {
+                this.releaseBuffer(buffer);
             }
         }
     }
 
-    private void handleMessage(DatagramPacket datagramPacket) {
+    private void handleBatch(DatagramChannel channel, List<ReceivedPacket> batch) {
+        for (ReceivedPacket packet : batch) {
+            try {
+                this.handleMessage(channel, packet);
+            } finally {
+                this.releaseBuffer(packet.buffer());
+            }
+        }
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        this.bufferPool.offer(buffer);
+    }
+
+    private void handleMessage(DatagramChannel channel, ReceivedPacket packet) {
         try {
-            byte[] requestMessage = Arrays.copyOf(datagramPacket.getData(), datagramPacket.getLength());
+            byte[] requestMessage = new byte[packet.buffer().remaining()];
+            packet.buffer().get(requestMessage);
 
-            // IP e porta usados somente para log e envio da resposta, para lógica usado IP e Porta da mensagem
-            InetAddress clientIp = datagramPacket.getAddress();
-            int clientPort = datagramPacket.getPort();
-            String clientAddress = clientIp + ":" + clientPort;
+            // Endereço usado somente para log e envio da resposta, para lógica usado IP e Porta da mensagem
+            SocketAddress clientAddress = packet.clientAddress();
 
             this.log("Recebeu uma requisição de " + clientAddress, false);
             RequestMessage request;
@@ -101,8 +311,9 @@ public class Tracker {
                 out.flush();
                 byte[] responseData = byteOut.toByteArray();
 
-                DatagramPacket responsePacket = new DatagramPacket(responseData, responseData.length, clientIp, clientPort);
-                trackerSocket.send(responsePacket);
+                if (channel.send(ByteBuffer.wrap(responseData), clientAddress) == 0) {
+                    this.log("Buffer de envio cheio, resposta descartada para " + clientAddress, true);
+                }
             }
         } catch (Exception e){
             this.log("Erro no processamento da mensagem: " + e.getMessage(), true);
@@ -110,6 +321,16 @@ public class Tracker {
     }
 
     private RequestMessage handleJoinOrUpdate(RequestMessage request) {
+        String peerIp = BitTorrentUtils.extractData(request.getData(), DataType.IP);
+        Integer peerPort = BitTorrentUtils.extractData(request.getData(), DataType.PORT);
+        Set<String> peerPieces = BitTorrentUtils.extractData(request.getData(), DataType.PIECE_LIST);
+
+        // Sem IP e porta o peer não pode ser contatado, e gravá-lo quebraria o snapshot
+        if (peerIp == null || peerIp.isBlank() || peerPort == null || peerPieces == null) {
+            this.log("Anúncio incompleto ignorado de " + request.getSenderAddress() + ": IP, porta e lista de pedaços são obrigatórios", true);
+            return null;
+        }
+
         this.registerOrUpdatePeerInfo(request);
         return this.sendPeerList(request);
     }
@@ -118,30 +339,72 @@ public class Tracker {
         PeerInfo peerInfo = BitTorrentUtils.generatePeerInfoFromRequest(request);
         Set<String> peerPieces = BitTorrentUtils.extractData(request.getData(), DataType.PIECE_LIST);
 
-        for (String piece : peerPieces) {
-            List<PeerInfo> peersWithPiece = this.piecesInfoMap.get(piece);
+        this.provisionalPeersLock.readLock().lock();
+
+        try {
+            // Listas são substituídas dentro do compute para que workers concorrentes não serializem uma lista em alteração
+            for (String piece : peerPieces) {
+                this.piecesInfoMap.compute(piece, (key, peersWithPiece) -> {
+                    if (peersWithPiece == null) {
+                        this.snapshotDirty.set(true);
+                        return new ArrayList<>(List.of(peerInfo));
+                    }
 
-            if (peersWithPiece == null) {
-                this.piecesInfoMap.put(piece, new ArrayList<>(List.of(peerInfo)));
-            } else if (peersWithPiece.stream().noneMatch(peerInList -> peerInList.getPeerAddress() != null && peerInList.getPeerAddress().equals(peerInfo.getPeerAddress()))) {
-                this.piecesInfoMap.get(piece).add(peerInfo);
+                    if (peersWithPiece.stream().noneMatch(peerInList -> peerInList.getPeerAddress() != null && peerInList.getPeerAddress().equals(peerInfo.getPeerAddress()))) {
+                        List<PeerInfo> updatedPeers = new ArrayList<>(peersWithPiece);
+                        updatedPeers.add(peerInfo);
+                        this.snapshotDirty.set(true);
+                        return updatedPeers;
+                    }
+
+                    return peersWithPiece;
+                });
             }
 
+            // Peer restaurado do snapshot deixa de ser provisório e perde os pedaços que não anunciou mais
+            if (this.provisionalPeers.remove(peerInfo.getPeerAddress())) {
+                for (String piece : this.piecesInfoMap.keySet()) {
+                    if (!peerPieces.contains(piece)) {
+                        this.removePeersFromPiece(piece, Set.of(peerInfo.getPeerAddress()));
+                    }
+                }
+            }
+        } finally {
+            this.provisionalPeersLock.readLock().unlock();
         }
 
         this.log("Atualizando piecesInfoMap com os pedaços do peer: " + peerInfo.getPeerAddress() + ". Pedaços: " + peerPieces, false);
     }
 
+    private void removePeersFromPiece(String piece, Set<String> peerAddresses) {
+        this.piecesInfoMap.computeIfPresent(piece, (key, peersWithPiece) -> {
+            List<PeerInfo> remainingPeers = peersWithPiece.stream()
+                    .filter(peer -> !peerAddresses.contains(peer.getPeerAddress()))
+                    .toList();
+
+            if (remainingPeers.size() == peersWithPiece.size()) {
+                return peersWithPiece;
+            }
+
+            this.snapshotDirty.set(true);
+            return remainingPeers.isEmpty() ? null : new ArrayList<>(remainingPeers);
+        });
+    }
+
     private RequestMessage sendPeerList(RequestMessage request) {
         PeerInfo peerInfo = BitTorrentUtils.generatePeerInfoFromRequest(request);
         RequestMessage requestMessage = new RequestMessage(this.trackerIp + ":" + this.trackerPort, RequestType.UPDATE_TRACKER);
         requestMessage.getData().put(DataType.SUCCESS, true);
         requestMessage.getData().put(DataType.PIECES_INFO_MAP, this.piecesInfoMap);
+        requestMessage.getData().put(DataType.TRANSACTION_ID, request.getData().get(DataType.TRANSACTION_ID));
 
         this.log("Enviada lista de pedaços para: " + peerInfo.getPeerAddress(), false);
         return requestMessage;
     }
 
+    private record ReceivedPacket(ByteBuffer buffer, SocketAddress clientAddress) {
+    }
+
     private void log(String message, boolean error) {
         String timestamp = LocalDateTime.now().format(this.formatter);
 
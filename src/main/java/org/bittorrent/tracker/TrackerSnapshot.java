@@ -0,0 +1,87 @@
+package org.bittorrent.tracker;
+
+import org.bittorrent.peer.PeerInfo;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+// Snapshot binário do estado do swarm, agrupado por peer: [MAGIC][nº de peers] e para cada peer [ip][porta][nº de pedaços][pedaços...].
+// A escrita vai para um arquivo temporário que substitui o anterior atomicamente, então sempre há um snapshot completo em disco.
+public class TrackerSnapshot {
+
+    private static final int MAGIC = 0x42545331;
+
+    private final Path snapshotPath;
+    private final Path tempPath;
+
+    public TrackerSnapshot(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        this.tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+    }
+
+    public void write(Map<String, List<PeerInfo>> piecesInfoMap) throws IOException {
+        Map<String, PeerInfo> peers = new LinkedHashMap<>();
+        Map<String, List<String>> piecesByPeer = new HashMap<>();
+
+        for (Map.Entry<String, List<PeerInfo>> entry : piecesInfoMap.entrySet()) {
+            for (PeerInfo peer : entry.getValue()) {
+                peers.putIfAbsent(peer.getPeerAddress(), peer);
+                piecesByPeer.computeIfAbsent(peer.getPeerAddress(), address -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        Path parentDir = this.snapshotPath.toAbsolutePath().getParent();
+
+        if (parentDir != null) {
+            Files.createDirectories(parentDir);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(this.tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(peers.size());
+
+            for (PeerInfo peer : peers.values()) {
+                List<String> pieces = piecesByPeer.get(peer.getPeerAddress());
+                out.writeUTF(peer.getIp());
+                out.writeInt(peer.getPort());
+                out.writeInt(pieces.size());
+
+                for (String piece : pieces) {
+                    out.writeUTF(piece);
+                }
+            }
+        }
+
+        Files.move(this.tempPath, this.snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Map<String, List<PeerInfo>> read() throws IOException {
+        Map<String, List<PeerInfo>> piecesInfoMap = new HashMap<>();
+
+        if (!Files.exists(this.snapshotPath)) {
+            return piecesInfoMap;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.snapshotPath)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Formato de snapshot inválido: " + this.snapshotPath);
+            }
+
+            int peerCount = in.readInt();
+
+            for (int i = 0; i < peerCount; i++) {
+                PeerInfo peer = new PeerInfo(in.readUTF(), in.readInt());
+                int pieceCount = in.readInt();
+
+                for (int j = 0; j < pieceCount; j++) {
+                    piecesInfoMap.computeIfAbsent(in.readUTF(), piece -> new ArrayList<>()).add(peer);
+                }
+            }
+        }
+
+        return piecesInfoMap;
+    }
+}
@@ -8,8 +8,10 @@ import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.regex.Pattern;
@@ -71,6 +73,39 @@ public class BitTorrentUtils {
         return new PeerInfo(peerIp, peerPort);
     }
 
+    public static int mergePiecesInfo(Map<String, List<PeerInfo>> target, Map<String, List<PeerInfo>> source) {
+        return mergePiecesInfo(target, source, null);
+    }
+
+    // Adiciona em target os pares pedaço/peer de source ainda não conhecidos, registrando-os em added (opcional).
+    // As listas são substituídas em vez de alteradas para não invalidar leituras concorrentes.
+    public static int mergePiecesInfo(Map<String, List<PeerInfo>> target, Map<String, List<PeerInfo>> source, Map<String, List<PeerInfo>> added) {
+        int newEntries = 0;
+
+        for (Map.Entry<String, List<PeerInfo>> entry : source.entrySet()) {
+            List<PeerInfo> current = target.getOrDefault(entry.getKey(), List.of());
+            List<PeerInfo> merged = new ArrayList<>(current);
+
+            for (PeerInfo peer : entry.getValue()) {
+                if (peer == null || peer.getPeerAddress() == null) continue;
+                if (merged.stream().anyMatch(known -> peer.getPeerAddress().equals(known.getPeerAddress()))) continue;
+
+                merged.add(peer);
+                newEntries++;
+
+                if (added != null) {
+                    added.computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(peer);
+                }
+            }
+
+            if (merged.size() != current.size() || !target.containsKey(entry.getKey())) {
+                target.put(entry.getKey(), merged);
+            }
+        }
+
+        return newEntries;
+    }
+
     @SuppressWarnings("unchecked")
     public static  <T> T extractData(Map<DataType, Object> data, DataType dataType) {
         return (T) data.get(dataType);
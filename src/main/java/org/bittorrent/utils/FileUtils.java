@@ -5,10 +5,13 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 
 public class FileUtils {
 
+    public static final String TEMP_FILE_SUFFIX = ".part";
+
     public static void createFileFromBytes(String filePath, byte[] data) throws IOException {
         Path path = Paths.get(filePath);
         Path parentDir = path.getParent();
@@ -17,7 +20,10 @@ public class FileUtils {
             Files.createDirectories(parentDir);
         }
 
-        Files.write(path, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        // Escreve em um arquivo temporário e o move atomicamente, para que ninguém leia o arquivo pela metade
+        Path tempPath = path.resolveSibling(path.getFileName() + TEMP_FILE_SUFFIX);
+        Files.write(tempPath, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     public static byte[] readBytesFromFile(String filePath) throws IOException {